@@ -0,0 +1,27 @@
+#!/usr/bin/env bash
+# 生成 AppCDS 归档并打印启动命令
+# 用法：mvn -Pfast-startup -DskipTests package && scripts/cds-archive.sh
+# 训练运行会在上下文刷新后退出（spring.context.exit=onRefresh），但仍需要能连上 prod 数据库
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=$(ls target/cosplay-*.jar | grep -v '\.original$' | head -n 1)
+OUT=target/cds
+
+rm -rf "$OUT"
+mkdir -p "$OUT/extracted"
+(cd "$OUT/extracted" && jar xf "../../../$JAR")
+
+# CDS 不归档目录和嵌套 jar 中的类，因此把应用类重新打成普通 jar
+(cd "$OUT/extracted/BOOT-INF/classes" && jar cf ../../../app.jar .)
+CP="$OUT/app.jar:$(ls "$OUT"/extracted/BOOT-INF/lib/*.jar | tr '\n' ':')"
+echo "$CP" > "$OUT/classpath"
+
+JAVA_OPTS="-Dspring.aot.enabled=true -Dspring.profiles.active=prod"
+
+java -XX:ArchiveClassesAtExit="$OUT/app.jsa" -Dspring.context.exit=onRefresh \
+    $JAVA_OPTS -cp "$CP" ai.cosplay.CosplayApplication
+
+echo
+echo "启动命令："
+echo "java -XX:SharedArchiveFile=$OUT/app.jsa $JAVA_OPTS -cp \"\$(cat $OUT/classpath)\" ai.cosplay.CosplayApplication"
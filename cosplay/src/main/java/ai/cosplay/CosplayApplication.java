@@ -2,8 +2,10 @@ package ai.cosplay;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
 public class CosplayApplication {
     public static void main(String[] args) {
         SpringApplication.run(CosplayApplication.class, args);
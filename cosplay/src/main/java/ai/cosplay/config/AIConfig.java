@@ -2,9 +2,15 @@ package ai.cosplay.config;
 
 import org.springframework.ai.chat.client.ChatClient;
 import org.springframework.ai.chat.model.ChatModel;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.web.client.ClientHttpRequestFactories;
+import org.springframework.boot.web.client.ClientHttpRequestFactorySettings;
+import org.springframework.boot.web.client.RestClientCustomizer;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 
+import java.time.Duration;
+
 @Configuration
 public class AIConfig {
 
@@ -12,4 +18,13 @@ public class AIConfig {
     public ChatClient chatClient(ChatModel chatModel) {
         return ChatClient.create(chatModel);
     }
+
+    // 模型调用的执行时长由读超时约束：阻塞的 HTTP 调用不响应中断，调度器无法在调用中途取消
+    @Bean
+    public RestClientCustomizer modelHttpTimeouts(@Value("${app.ai.http.connect-timeout:10s}") Duration connectTimeout,
+                                                  @Value("${app.ai.http.read-timeout:90s}") Duration readTimeout) {
+        return builder -> builder.requestFactory(ClientHttpRequestFactories.get(ClientHttpRequestFactorySettings.DEFAULTS
+                .withConnectTimeout(connectTimeout)
+                .withReadTimeout(readTimeout)));
+    }
 }
@@ -0,0 +1,34 @@
+package ai.cosplay.config;
+
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.boot.info.BuildProperties;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * 启动完成后输出一行固定格式的耗时日志，便于按版本对比冷启动时间。
+ * 同样的数据也可从 /actuator/metrics/application.ready.time 获取。
+ */
+@Component
+@RequiredArgsConstructor
+public class StartupTimeReporter {
+    private static final Logger log = LoggerFactory.getLogger(StartupTimeReporter.class);
+    private final ObjectProvider<BuildProperties> buildProperties;
+
+    @EventListener
+    public void onReady(ApplicationReadyEvent event) {
+        BuildProperties build = buildProperties.getIfAvailable();
+        String version = build != null ? build.getVersion() : "unknown";
+        long readyMs = event.getTimeTaken() != null ? event.getTimeTaken().toMillis() : -1;
+        long jvmUptimeMs = ManagementFactory.getRuntimeMXBean().getUptime();
+        log.info("startup version={} readyMs={} jvmUptimeMs={} profiles={}",
+                version, readyMs, jvmUptimeMs,
+                String.join(",", event.getApplicationContext().getEnvironment().getActiveProfiles()));
+    }
+}
@@ -2,6 +2,7 @@ package ai.cosplay.controller;
 
 import ai.cosplay.domain.ChatHistory;
 import ai.cosplay.service.ChatService;
+import ai.cosplay.service.ShareService;
 import jakarta.validation.Valid;
 import jakarta.validation.constraints.NotBlank;
 import jakarta.validation.constraints.NotNull;
@@ -9,10 +10,16 @@ import lombok.Data;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -22,18 +29,59 @@ import java.util.List;
 public class ChatController {
     private static final Logger log = LoggerFactory.getLogger(ChatController.class);
     private final ChatService chatService;
+    private final ShareService shareService;
 
     @PostMapping
-    public ResponseEntity<ChatService.ChatResponse> chat(@Valid @RequestBody ChatRequest request) {
-        var response = chatService.chat(request.getRoleId(), request.getSessionId(), request.getMessage());
+    public ResponseEntity<ChatService.ChatResponse> chat(@Valid @RequestBody ChatRequest request,
+                                                         @RequestHeader(value = "X-Request-Timeout", required = false) Long timeoutMillis) {
+        // 客户端可通过 X-Request-Timeout（毫秒）声明愿意等待的时长，过期请求在排队时直接丢弃
+        Instant deadline = timeoutMillis != null && timeoutMillis > 0 ? Instant.now().plusMillis(timeoutMillis) : null;
+        var response = chatService.chat(request.getRoleId(), request.getSessionId(), request.getMessage(), deadline);
         return ResponseEntity.ok(response);
     }
 
+    @PostMapping("/session")
+    public ResponseEntity<ChatService.SessionResponse> createSession(@Valid @RequestBody SessionRequest request) {
+        return ResponseEntity.ok(chatService.createSession(request.getRoleId()));
+    }
+
+    @PostMapping("/fork")
+    public ResponseEntity<ChatService.ForkResponse> fork(@Valid @RequestBody ForkRequest request) {
+        return ResponseEntity.ok(chatService.fork(request.getSessionId(), request.getTurnId()));
+    }
+
+    @GetMapping("/branches")
+    public ResponseEntity<List<ChatService.BranchSummary>> branches(@RequestParam("sessionId") String sessionId) {
+        return ResponseEntity.ok(chatService.branches(sessionId));
+    }
+
     @GetMapping("/history")
     public ResponseEntity<List<ChatHistory>> history(@RequestParam("sessionId") String sessionId) {
         return ResponseEntity.ok(chatService.getHistoryBySession(sessionId));
     }
 
+    /**
+     * 导出完整会话（不受 history 接口 100 条限制），按数据库游标流式写出。
+     */
+    @GetMapping("/export")
+    public ResponseEntity<StreamingResponseBody> export(@RequestParam("sessionId") String sessionId,
+                                                        @RequestParam(value = "format", defaultValue = "json") String format) {
+        shareService.requireSession(sessionId);
+        ShareService.ExportFormat exportFormat = "markdown".equalsIgnoreCase(format) || "md".equalsIgnoreCase(format)
+                ? ShareService.ExportFormat.MARKDOWN
+                : ShareService.ExportFormat.JSON;
+        String filename = "session-" + sessionId + (exportFormat == ShareService.ExportFormat.MARKDOWN ? ".md" : ".json");
+        MediaType mediaType = exportFormat == ShareService.ExportFormat.MARKDOWN
+                ? new MediaType("text", "markdown", StandardCharsets.UTF_8)
+                : MediaType.APPLICATION_JSON;
+        StreamingResponseBody body = out -> shareService.export(sessionId, exportFormat, out);
+        return ResponseEntity.ok()
+                .contentType(mediaType)
+                .header(HttpHeaders.CONTENT_DISPOSITION,
+                        ContentDisposition.attachment().filename(filename, StandardCharsets.UTF_8).build().toString())
+                .body(body);
+    }
+
     @Data
     public static class ChatRequest {
         @NotNull
@@ -42,6 +90,18 @@ public class ChatController {
         @NotBlank
         private String message;
     }
-}
 
+    @Data
+    public static class SessionRequest {
+        @NotNull
+        private Long roleId;
+    }
 
+    @Data
+    public static class ForkRequest {
+        @NotBlank
+        private String sessionId;
+        // 为空时从当前最新一轮分叉
+        private Long turnId;
+    }
+}
@@ -1,5 +1,6 @@
 package ai.cosplay.controller;
 
+import ai.cosplay.service.ModelBusyException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.http.HttpStatus;
@@ -22,6 +23,12 @@ public class GlobalExceptionHandler {
         return build(HttpStatus.BAD_REQUEST, ex.getMessage());
     }
 
+    @ExceptionHandler(ModelBusyException.class)
+    public ResponseEntity<Map<String, Object>> handleModelBusy(ModelBusyException ex) {
+        log.warn("Model call dropped: {}", ex.getMessage());
+        return build(HttpStatus.SERVICE_UNAVAILABLE, ex.getMessage());
+    }
+
     @ExceptionHandler({MethodArgumentNotValidException.class, BindException.class})
     public ResponseEntity<Map<String, Object>> handleValidation(Exception ex) {
         log.warn("Validation failed: {}", ex.getMessage());
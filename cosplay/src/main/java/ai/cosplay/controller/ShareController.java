@@ -0,0 +1,118 @@
+package ai.cosplay.controller;
+
+import ai.cosplay.domain.SessionShare;
+import ai.cosplay.service.ShareService;
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotBlank;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.CacheControl;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import org.springframework.web.context.request.WebRequest;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+
+import java.io.ByteArrayInputStream;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.zip.GZIPInputStream;
+
+@RestController
+@RequestMapping("/api/share")
+@RequiredArgsConstructor
+@Validated
+public class ShareController {
+    private final ShareService shareService;
+
+    @PostMapping
+    public ResponseEntity<ShareResponse> create(@Valid @RequestBody ShareRequest request) {
+        SessionShare share = shareService.createShare(request.getSessionId());
+        return ResponseEntity.ok(new ShareResponse(share.getId(), share.getTurnCount(), share.getCreatedAt()));
+    }
+
+    /**
+     * 返回分享快照。快照不可变，允许浏览器和 CDN 长期缓存；客户端支持 gzip 时直接返回压缩内容，
+     * 否则边解压边写出，不在内存中展开整份快照。
+     * 压缩与未压缩是两种不同的表示，使用不同的 ETag，避免缓存按 If-None-Match 把其中一种当成另一种返回。
+     */
+    @GetMapping("/{shareId}")
+    public ResponseEntity<StreamingResponseBody> get(@PathVariable String shareId,
+                                                     @RequestHeader(value = HttpHeaders.ACCEPT_ENCODING, required = false) String acceptEncoding,
+                                                     WebRequest request) {
+        Optional<SessionShare> found = shareService.getShare(shareId);
+        if (found.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+        SessionShare share = found.get();
+        boolean gzip = acceptsGzip(acceptEncoding);
+        String eTag = "\"" + share.getId() + (gzip ? "-gz" : "") + "\"";
+        // 流式响应不经过 ResponseEntity 的条件请求处理，这里自行比对 If-None-Match（同时写入 ETag 响应头）
+        if (request.checkNotModified(eTag)) {
+            return null;
+        }
+        ResponseEntity.BodyBuilder builder = ResponseEntity.ok()
+                .contentType(MediaType.APPLICATION_JSON)
+                .cacheControl(CacheControl.maxAge(Duration.ofDays(365)).cachePublic().immutable())
+                .header(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        byte[] snapshot = share.getSnapshot();
+        if (gzip) {
+            return builder.header(HttpHeaders.CONTENT_ENCODING, "gzip")
+                    .contentLength(snapshot.length)
+                    .body(out -> out.write(snapshot));
+        }
+        return builder.body(out -> {
+            try (GZIPInputStream in = new GZIPInputStream(new ByteArrayInputStream(snapshot))) {
+                in.transferTo(out);
+            }
+        });
+    }
+
+    /**
+     * 按 Accept-Encoding 判断是否接受 gzip：显式列出的 gzip 优先，其次看通配符 *，q=0 表示拒绝。
+     */
+    private static boolean acceptsGzip(String acceptEncoding) {
+        if (acceptEncoding == null) {
+            return false;
+        }
+        Boolean wildcard = null;
+        for (String part : acceptEncoding.split(",")) {
+            String[] params = part.split(";");
+            String coding = params[0].trim().toLowerCase(Locale.ROOT);
+            boolean accepted = qualityOf(params) > 0;
+            if (coding.equals("gzip") || coding.equals("x-gzip")) {
+                return accepted;
+            }
+            if (coding.equals("*")) {
+                wildcard = accepted;
+            }
+        }
+        return Boolean.TRUE.equals(wildcard);
+    }
+
+    private static double qualityOf(String[] params) {
+        for (int i = 1; i < params.length; i++) {
+            String param = params[i].trim();
+            if (param.length() > 2 && (param.charAt(0) == 'q' || param.charAt(0) == 'Q') && param.charAt(1) == '=') {
+                try {
+                    return Double.parseDouble(param.substring(2).trim());
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+        return 1;
+    }
+
+    @Data
+    public static class ShareRequest {
+        @NotBlank
+        private String sessionId;
+    }
+
+    public record ShareResponse(String shareId, long turnCount, Instant createdAt) {}
+}
@@ -0,0 +1,52 @@
+package ai.cosplay.controller;
+
+import ai.cosplay.domain.UsageTotal;
+import ai.cosplay.service.TokenUsageLedger;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.time.LocalDate;
+import java.util.List;
+
+/**
+ * token 用量查询，日期区间默认为最近 30 天。数据按刷盘周期更新，会有几十秒延迟。
+ */
+@RestController
+@RequestMapping("/api/usage")
+@RequiredArgsConstructor
+public class UsageController {
+    private final TokenUsageLedger tokenUsageLedger;
+
+    @GetMapping("/roles")
+    public ResponseEntity<List<UsageTotal>> byRole(
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(tokenUsageLedger.totalsByRole(fromOrDefault(from), toOrDefault(to)));
+    }
+
+    @GetMapping("/sessions")
+    public ResponseEntity<List<UsageTotal>> bySession(
+            @RequestParam(value = "roleId", required = false) Long roleId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(tokenUsageLedger.totalsBySession(roleId, fromOrDefault(from), toOrDefault(to)));
+    }
+
+    @GetMapping("/days")
+    public ResponseEntity<List<UsageTotal>> byDay(
+            @RequestParam(value = "roleId", required = false) Long roleId,
+            @RequestParam(value = "from", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate from,
+            @RequestParam(value = "to", required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate to) {
+        return ResponseEntity.ok(tokenUsageLedger.totalsByDay(roleId, fromOrDefault(from), toOrDefault(to)));
+    }
+
+    private static LocalDate fromOrDefault(LocalDate from) {
+        return from != null ? from : LocalDate.now().minusDays(29);
+    }
+
+    private static LocalDate toOrDefault(LocalDate to) {
+        return to != null ? to : LocalDate.now();
+    }
+}
@@ -0,0 +1,52 @@
+package ai.cosplay.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * 会话分支。一个 sessionId 对应一个分支，只记录指向最新一轮的 head，
+ * 分叉时新分支直接指向已有记录，不复制历史。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "chat_branch", indexes = {
+        @Index(name = "idx_branch_forked_from", columnList = "forked_from")
+})
+public class ChatBranch {
+
+    @Id
+    @Column(name = "session_id", length = 64)
+    private String sessionId;
+
+    // 不生成外键约束，与 V5 迁移保持一致（旧库 roles.id 为 INT）
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "role_id", foreignKey = @ForeignKey(ConstraintMode.NO_CONSTRAINT))
+    private Role role;
+
+    // 当前分支最新一轮，为空表示尚无对话
+    @Column(name = "head_id")
+    private Long headId;
+
+    // head 的轮次序号，即该分支上下文的总轮数
+    @Column(name = "depth", nullable = false)
+    private int depth;
+
+    @Column(name = "forked_from", length = 64)
+    private String forkedFrom;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    public void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+}
@@ -14,7 +14,9 @@ import java.time.Instant;
 @Entity
 @Table(name = "chat_history", indexes = {
         @Index(name = "idx_chat_role", columnList = "role_id"),
-        @Index(name = "idx_chat_session", columnList = "session_id")
+        @Index(name = "idx_chat_session", columnList = "session_id"),
+        @Index(name = "idx_chat_session_created", columnList = "session_id, created_at, id"),
+        @Index(name = "idx_chat_parent", columnList = "parent_id")
 })
 public class ChatHistory {
 
@@ -29,6 +31,14 @@ public class ChatHistory {
     @Column(name = "session_id", nullable = false, length = 64)
     private String sessionId;
 
+    // 上一轮对话，各分支共享祖先记录，构成一棵按 parent 链接的树
+    @Column(name = "parent_id")
+    private Long parentId;
+
+    // 从根开始的轮次序号（第一轮为 1）
+    @Column(name = "depth")
+    private Integer depth;
+
 
     @Column(name = "user_message", nullable = false, columnDefinition = "LONGTEXT")
     private String userMessage;
@@ -33,6 +33,10 @@ public class Role {
     @Column(name = "system_prompt", nullable = false, columnDefinition = "LONGTEXT")
     private String systemPrompt;
 
+    // 创建角色时预先生成的开场白，新会话直接展示，无需调用模型
+    @Column(name = "greeting", columnDefinition = "LONGTEXT")
+    private String greeting;
+
     @Column(name = "created_at", nullable = false, updatable = false)
     private Instant createdAt;
 
@@ -42,6 +46,13 @@ public class Role {
             createdAt = Instant.now();
         }
     }
+
+    // 新会话展示的开场白，未预生成开场白的角色使用默认模板
+    public String effectiveGreeting() {
+        return greeting != null && !greeting.isBlank()
+                ? greeting
+                : "你好！我是" + name + "，" + description + "。有什么我可以帮助你的吗？";
+    }
 }
 
 
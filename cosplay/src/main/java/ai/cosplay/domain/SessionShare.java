@@ -0,0 +1,44 @@
+package ai.cosplay.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+
+/**
+ * 会话分享快照：创建后不再修改，snapshot 为 gzip 压缩的 JSON。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "session_share", indexes = {
+        @Index(name = "idx_share_session", columnList = "session_id")
+})
+public class SessionShare {
+
+    @Id
+    @Column(length = 32)
+    private String id;
+
+    @Column(name = "session_id", nullable = false, length = 64)
+    private String sessionId;
+
+    @Column(name = "turn_count", nullable = false)
+    private long turnCount;
+
+    @Column(name = "snapshot", nullable = false, columnDefinition = "LONGBLOB")
+    private byte[] snapshot;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    public void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package ai.cosplay.domain;
+
+import jakarta.persistence.*;
+import lombok.*;
+
+import java.time.Instant;
+import java.time.LocalDate;
+
+/**
+ * token 用量台账。每个 (日期, 角色, 会话, 来源) 一行，刷盘时在该行上累加（见 TokenUsageLedger）。
+ * 唯一键不对 NULL 去重，未归属角色/会话时分别记为 0 和空串。
+ */
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+@Builder
+@Entity
+@Table(name = "token_usage", uniqueConstraints = {
+        @UniqueConstraint(name = "uk_usage_key", columnNames = {"usage_date", "role_id", "session_id", "source"})
+}, indexes = {
+        @Index(name = "idx_usage_session", columnList = "session_id")
+})
+public class TokenUsageEntry {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Column(name = "role_id", nullable = false)
+    private Long roleId;
+
+    @Column(name = "session_id", nullable = false, length = 64)
+    private String sessionId;
+
+    @Column(name = "source", nullable = false, length = 32)
+    private String source;
+
+    @Column(name = "call_count", nullable = false)
+    private long callCount;
+
+    @Column(name = "prompt_tokens", nullable = false)
+    private long promptTokens;
+
+    @Column(name = "completion_tokens", nullable = false)
+    private long completionTokens;
+
+    @Column(name = "cached_tokens", nullable = false)
+    private long cachedTokens;
+
+    @Column(name = "created_at", nullable = false, updatable = false)
+    private Instant createdAt;
+
+    @PrePersist
+    public void onCreate() {
+        if (createdAt == null) {
+            createdAt = Instant.now();
+        }
+    }
+}
@@ -0,0 +1,6 @@
+package ai.cosplay.domain;
+
+/**
+ * 按角色/会话/日期汇总的 token 用量，key 为对应维度的值。
+ */
+public record UsageTotal(String key, Long calls, Long promptTokens, Long completionTokens, Long cachedTokens) {}
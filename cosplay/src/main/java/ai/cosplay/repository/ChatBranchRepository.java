@@ -0,0 +1,22 @@
+package ai.cosplay.repository;
+
+import ai.cosplay.domain.ChatBranch;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+public interface ChatBranchRepository extends JpaRepository<ChatBranch, String> {
+
+    // 追加对话时锁定分支行（SELECT ... FOR UPDATE），同一会话的并发请求依次移动 head
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select b from ChatBranch b where b.sessionId = :sessionId")
+    Optional<ChatBranch> findForUpdate(@Param("sessionId") String sessionId);
+
+    List<ChatBranch> findByForkedFromIn(Collection<String> sessionIds);
+}
@@ -2,13 +2,63 @@ package ai.cosplay.repository;
 
 import ai.cosplay.domain.ChatHistory;
 import ai.cosplay.domain.Role;
+import jakarta.persistence.QueryHint;
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
+import java.util.stream.Stream;
 
 public interface ChatHistoryRepository extends JpaRepository<ChatHistory, Long> {
     List<ChatHistory> findTop50ByRoleOrderByCreatedAtDesc(Role role);
-    List<ChatHistory> findTop100BySessionIdOrderByCreatedAtDesc(String sessionId);
-}
+    List<ChatHistory> findBySessionIdOrderByCreatedAtAscIdAsc(String sessionId);
+
+    /**
+     * 从 headId 沿 parent 链向上取最近 limit 轮，按轮次正序返回。递归部分只走主键和 parent_id，
+     * 对话正文只对最终命中的行读取。
+     */
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE path (id, parent_id, n) AS (
+                SELECT id, parent_id, 1 FROM chat_history WHERE id = :headId
+                UNION ALL
+                SELECT h.id, h.parent_id, p.n + 1 FROM chat_history h JOIN path p ON h.id = p.parent_id
+                WHERE p.n < :limit
+            )
+            SELECT h.* FROM chat_history h JOIN path p ON h.id = p.id
+            ORDER BY p.n DESC
+            """)
+    List<ChatHistory> findPath(@Param("headId") Long headId, @Param("limit") int limit);
 
+    /**
+     * 从 headId 沿 parent 链向上走 steps 步，统计途经 turnId 的次数，用于校验该轮是否在分支路径上。
+     */
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE path (id, parent_id, n) AS (
+                SELECT id, parent_id, 0 FROM chat_history WHERE id = :headId
+                UNION ALL
+                SELECT h.id, h.parent_id, p.n + 1 FROM chat_history h JOIN path p ON h.id = p.parent_id
+                WHERE p.n < :steps
+            )
+            SELECT COUNT(*) FROM path WHERE id = :turnId
+            """)
+    long countOnPath(@Param("headId") Long headId, @Param("turnId") Long turnId, @Param("steps") int steps);
 
+    // 导出用：整条路径流式读取。MySQL 驱动在 fetchSize = Integer.MIN_VALUE 时逐行读取，需在事务内消费
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "-2147483648"),
+            @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query(nativeQuery = true, value = """
+            WITH RECURSIVE path (id, parent_id, n) AS (
+                SELECT id, parent_id, 1 FROM chat_history WHERE id = :headId
+                UNION ALL
+                SELECT h.id, h.parent_id, p.n + 1 FROM chat_history h JOIN path p ON h.id = p.parent_id
+            )
+            SELECT h.* FROM chat_history h JOIN path p ON h.id = p.id
+            ORDER BY p.n DESC
+            """)
+    Stream<ChatHistory> streamPath(@Param("headId") Long headId);
+}
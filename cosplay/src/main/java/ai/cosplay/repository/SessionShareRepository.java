@@ -0,0 +1,10 @@
+package ai.cosplay.repository;
+
+import ai.cosplay.domain.SessionShare;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+import java.util.Optional;
+
+public interface SessionShareRepository extends JpaRepository<SessionShare, String> {
+    Optional<SessionShare> findFirstBySessionIdAndTurnCount(String sessionId, long turnCount);
+}
@@ -0,0 +1,46 @@
+package ai.cosplay.repository;
+
+import ai.cosplay.domain.TokenUsageEntry;
+import ai.cosplay.domain.UsageTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.time.LocalDate;
+import java.util.List;
+
+public interface TokenUsageRepository extends JpaRepository<TokenUsageEntry, Long> {
+
+    @Query("""
+            select new ai.cosplay.domain.UsageTotal(str(e.roleId), sum(e.callCount), sum(e.promptTokens),
+                   sum(e.completionTokens), sum(e.cachedTokens))
+            from TokenUsageEntry e
+            where e.usageDate between :from and :to
+            group by e.roleId
+            order by sum(e.promptTokens) + sum(e.completionTokens) desc
+            """)
+    List<UsageTotal> sumByRole(@Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("""
+            select new ai.cosplay.domain.UsageTotal(e.sessionId, sum(e.callCount), sum(e.promptTokens),
+                   sum(e.completionTokens), sum(e.cachedTokens))
+            from TokenUsageEntry e
+            where e.usageDate between :from and :to
+              and e.sessionId <> ''
+              and (:roleId is null or e.roleId = :roleId)
+            group by e.sessionId
+            order by sum(e.promptTokens) + sum(e.completionTokens) desc
+            """)
+    List<UsageTotal> sumBySession(@Param("roleId") Long roleId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+
+    @Query("""
+            select new ai.cosplay.domain.UsageTotal(str(e.usageDate), sum(e.callCount), sum(e.promptTokens),
+                   sum(e.completionTokens), sum(e.cachedTokens))
+            from TokenUsageEntry e
+            where e.usageDate between :from and :to
+              and (:roleId is null or e.roleId = :roleId)
+            group by e.usageDate
+            order by e.usageDate
+            """)
+    List<UsageTotal> sumByDay(@Param("roleId") Long roleId, @Param("from") LocalDate from, @Param("to") LocalDate to);
+}
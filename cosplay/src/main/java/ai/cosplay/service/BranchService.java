@@ -0,0 +1,176 @@
+package ai.cosplay.service;
+
+import ai.cosplay.domain.ChatBranch;
+import ai.cosplay.domain.ChatHistory;
+import ai.cosplay.domain.Role;
+import ai.cosplay.repository.ChatBranchRepository;
+import ai.cosplay.repository.ChatHistoryRepository;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * 会话分支管理。对话记录按 parent 链接成树，分支只保存 head 指针：
+ * 分叉是新增一行分支记录，与会话长度无关，祖先记录由各分支共享。
+ */
+@Service
+@RequiredArgsConstructor
+public class BranchService {
+    private static final Logger log = LoggerFactory.getLogger(BranchService.class);
+    private final ChatBranchRepository chatBranchRepository;
+    private final ChatHistoryRepository chatHistoryRepository;
+
+    /**
+     * 查找会话对应的分支。没有分支记录的旧会话按时间顺序补齐 parent 链后建立分支（只发生一次）。
+     */
+    @Transactional
+    public Optional<ChatBranch> find(String sessionId) {
+        Optional<ChatBranch> branch = chatBranchRepository.findById(sessionId);
+        if (branch.isPresent()) {
+            return branch;
+        }
+        List<ChatHistory> legacy = chatHistoryRepository.findBySessionIdOrderByCreatedAtAscIdAsc(sessionId);
+        if (legacy.isEmpty()) {
+            return Optional.empty();
+        }
+        Long parentId = null;
+        int depth = 0;
+        for (ChatHistory h : legacy) {
+            h.setParentId(parentId);
+            h.setDepth(++depth);
+            parentId = h.getId();
+        }
+        ChatHistory head = legacy.get(legacy.size() - 1);
+        log.info("Linked legacy session {} as branch, turns={}", sessionId, depth);
+        return Optional.of(chatBranchRepository.save(ChatBranch.builder()
+                .sessionId(sessionId)
+                .role(head.getRole())
+                .headId(head.getId())
+                .depth(depth)
+                .build()));
+    }
+
+    /**
+     * 取会话分支，不存在时为该角色新建空分支。
+     */
+    @Transactional
+    public ChatBranch getOrCreate(String sessionId, Role role) {
+        ChatBranch branch = find(sessionId)
+                .orElseGet(() -> chatBranchRepository.save(ChatBranch.builder()
+                        .sessionId(sessionId)
+                        .role(role)
+                        .depth(0)
+                        .build()));
+        if (!branch.getRole().getId().equals(role.getId())) {
+            throw new IllegalArgumentException("会话不属于该角色: " + sessionId);
+        }
+        return branch;
+    }
+
+    /**
+     * 分支上最近 limit 轮，按时间正序。
+     */
+    public List<ChatHistory> recentTurns(ChatBranch branch, int limit) {
+        if (branch.getHeadId() == null || limit <= 0) {
+            return List.of();
+        }
+        return chatHistoryRepository.findPath(branch.getHeadId(), limit);
+    }
+
+    /**
+     * 分支上的全部对话，按时间正序流式返回，需在事务内消费。
+     */
+    public Stream<ChatHistory> streamTurns(ChatBranch branch) {
+        if (branch.getHeadId() == null) {
+            return Stream.empty();
+        }
+        return chatHistoryRepository.streamPath(branch.getHeadId());
+    }
+
+    /**
+     * 在分支末尾追加一轮对话并移动 head。分支行加写锁后以最新 head 为 parent，
+     * 同一会话并发追加时后到的请求排在前一轮之后，不会产生脱离分支的记录。
+     */
+    @Transactional
+    public ChatHistory append(String sessionId, ChatHistory turn) {
+        ChatBranch branch = chatBranchRepository.findForUpdate(sessionId)
+                .orElseThrow(() -> new IllegalArgumentException("会话不存在: " + sessionId));
+        turn.setParentId(branch.getHeadId());
+        turn.setDepth(branch.getDepth() + 1);
+        ChatHistory saved = chatHistoryRepository.save(turn);
+        branch.setHeadId(saved.getId());
+        branch.setDepth(saved.getDepth());
+        return saved;
+    }
+
+    /**
+     * 会话所在分叉树上的全部分支：沿 forkedFrom 找到最初的会话，再逐层取出各级分叉，按创建时间排序。
+     */
+    @Transactional
+    public List<ChatBranch> family(String sessionId) {
+        ChatBranch root = find(sessionId)
+                .orElseThrow(() -> new IllegalArgumentException("会话不存在: " + sessionId));
+        Set<String> seen = new HashSet<>();
+        seen.add(root.getSessionId());
+        while (root.getForkedFrom() != null) {
+            Optional<ChatBranch> source = chatBranchRepository.findById(root.getForkedFrom());
+            if (source.isEmpty() || !seen.add(source.get().getSessionId())) {
+                break;
+            }
+            root = source.get();
+        }
+        List<ChatBranch> family = new ArrayList<>();
+        family.add(root);
+        List<String> level = List.of(root.getSessionId());
+        while (!level.isEmpty()) {
+            List<ChatBranch> forks = chatBranchRepository.findByForkedFromIn(level);
+            family.addAll(forks);
+            level = forks.stream().map(ChatBranch::getSessionId).toList();
+        }
+        family.sort(Comparator.comparing(ChatBranch::getCreatedAt));
+        return family;
+    }
+
+    /**
+     * 从指定轮次分叉出新会话，新分支以该轮为 head，之后的对话只写入新分支。
+     * turnId 为空时从当前 head 分叉。
+     */
+    @Transactional
+    public ChatBranch fork(String sessionId, Long turnId) {
+        ChatBranch source = find(sessionId)
+                .orElseThrow(() -> new IllegalArgumentException("会话不存在: " + sessionId));
+        Long headId = source.getHeadId();
+        int depth = source.getDepth();
+        if (turnId != null) {
+            ChatHistory turn = chatHistoryRepository.findById(turnId)
+                    .orElseThrow(() -> new IllegalArgumentException("对话记录不存在: " + turnId));
+            // 只能从源分支路径上的轮次分叉：深度不超过 head，且从 head 向上回溯到该深度时恰好是这一轮
+            if (headId == null || turn.getDepth() == null || turn.getDepth() > depth
+                    || chatHistoryRepository.countOnPath(headId, turnId, depth - turn.getDepth()) == 0) {
+                throw new IllegalArgumentException("对话记录不属于该会话: " + turnId);
+            }
+            headId = turn.getId();
+            depth = turn.getDepth();
+        }
+        ChatBranch forked = chatBranchRepository.save(ChatBranch.builder()
+                .sessionId(UUID.randomUUID().toString())
+                .role(source.getRole())
+                .headId(headId)
+                .depth(depth)
+                .forkedFrom(sessionId)
+                .build());
+        log.debug("Forked session {} at turn {} -> {}", sessionId, headId, forked.getSessionId());
+        return forked;
+    }
+}
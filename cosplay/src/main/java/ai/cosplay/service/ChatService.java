@@ -1,24 +1,24 @@
 package ai.cosplay.service;
 
+import ai.cosplay.domain.ChatBranch;
 import ai.cosplay.domain.ChatHistory;
 import ai.cosplay.domain.Role;
-import ai.cosplay.repository.ChatHistoryRepository;
 import ai.cosplay.repository.RoleRepository;
-import jakarta.transaction.Transactional;
+import io.micrometer.core.instrument.MeterRegistry;
 import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
-import org.springframework.ai.chat.messages.AssistantMessage;
 import org.springframework.ai.chat.messages.Message;
-import org.springframework.ai.chat.messages.SystemMessage;
-import org.springframework.ai.chat.messages.UserMessage;
 import org.springframework.ai.chat.model.ChatModel;
 import org.springframework.ai.chat.prompt.Prompt;
-import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.ai.openai.OpenAiChatOptions;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.util.StringUtils;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 import java.util.UUID;
 
@@ -26,37 +26,44 @@ import java.util.UUID;
 @RequiredArgsConstructor
 public class ChatService {
     private static final Logger log = LoggerFactory.getLogger(ChatService.class);
+    private static final int HISTORY_LIMIT = 100;
     private final ChatModel chatClient;
     private final RoleRepository roleRepository;
-    private final ChatHistoryRepository chatHistoryRepository;
+    private final BranchService branchService;
+    private final PromptAssembler promptAssembler;
+    private final ModelCallScheduler modelCallScheduler;
+    private final MeterRegistry meterRegistry;
+    private final TokenUsageLedger tokenUsageLedger;
 //    @Autowired
 //    private RoleRepository roleRepo;
 
-    @Transactional
-    public ChatResponse chat(Long roleId, String sessionId, String userMessageText) {
+    // 同一会话的请求带相同 user 字段，便于服务端复用缓存
+    @Value("${app.ai.prompt-cache.session-hint:true}")
+    private boolean sessionCacheHint;
+
+    /**
+     * deadline 为客户端截止时间（可为空），排队超过该时间的请求不再调用模型。
+     * 不在事务内执行：读上下文、调用模型、写回各自独立，排队和等待模型期间不占用数据库连接。
+     */
+    public ChatResponse chat(Long roleId, String sessionId, String userMessageText, Instant deadline) {
         Role role = roleRepository.findById(roleId)
                 .orElseThrow(() -> new IllegalArgumentException("角色不存在: " + roleId));
 
         String resolvedSessionId = StringUtils.hasText(sessionId) ? sessionId : UUID.randomUUID().toString();
 
-        List<Message> messages = new ArrayList<>();
-        messages.add(new SystemMessage(role.getSystemPrompt()));
-
-        List<ChatHistory> recent = chatHistoryRepository.findTop100BySessionIdOrderByCreatedAtDesc(resolvedSessionId);
-        // reverse chronological to chronological
-        for (int i = recent.size() - 1; i >= 0; i--) {
-            ChatHistory h = recent.get(i);
-            messages.add(new UserMessage(h.getUserMessage()));
-            messages.add(new AssistantMessage(h.getAssistantReply()));
-        }
+        ChatBranch branch = branchService.getOrCreate(resolvedSessionId, role);
+        // 沿分支 parent 链取对齐后的窗口
+        List<ChatHistory> context = branchService.recentTurns(branch, promptAssembler.windowSize(branch.getDepth()));
+        List<Message> messages = promptAssembler.assemble(role, context, userMessageText);
 
-        messages.add(new UserMessage(userMessageText));
-
-        var prompt = new Prompt(messages);
-        var response = chatClient.call(prompt);
+        var prompt = sessionCacheHint
+                ? new Prompt(messages, OpenAiChatOptions.builder().user(resolvedSessionId).build())
+                : new Prompt(messages);
+        var response = modelCallScheduler.call(ModelCallScheduler.Lane.INTERACTIVE, () -> chatClient.call(prompt), deadline);
         String reply = response.getResult().getOutput().getText();
+        recordUsage(role, resolvedSessionId, TokenUsage.from(response));
 
-        ChatHistory saved = chatHistoryRepository.save(ChatHistory.builder()
+        ChatHistory saved = branchService.append(resolvedSessionId, ChatHistory.builder()
                 .role(role)
                 .sessionId(resolvedSessionId)
                 .userMessage(userMessageText)
@@ -65,14 +72,60 @@ public class ChatService {
 
         log.debug("Saved chat history id={} session={}", saved.getId(), resolvedSessionId);
 
-        return new ChatResponse(resolvedSessionId, reply);
+        return new ChatResponse(resolvedSessionId, reply, saved.getId());
+    }
+
+    /**
+     * 创建新会话：只分配会话ID并返回角色开场白，不调用模型也不写库，会话在第一条消息时落库。
+     */
+    public SessionResponse createSession(Long roleId) {
+        Role role = roleRepository.findById(roleId)
+                .orElseThrow(() -> new IllegalArgumentException("角色不存在: " + roleId));
+        return new SessionResponse(UUID.randomUUID().toString(), role.effectiveGreeting());
     }
 
+    /**
+     * 分支上最近 100 轮，按时间倒序（与原 history 接口一致）。
+     */
     public List<ChatHistory> getHistoryBySession(String sessionId) {
-        return chatHistoryRepository.findTop100BySessionIdOrderByCreatedAtDesc(sessionId);
+        List<ChatHistory> recent = branchService.find(sessionId)
+                .map(branch -> new ArrayList<>(branchService.recentTurns(branch, HISTORY_LIMIT)))
+                .orElseGet(ArrayList::new);
+        Collections.reverse(recent);
+        return recent;
     }
 
-    public record ChatResponse(String sessionId, String reply) {}
-}
+    /**
+     * 从会话的某一轮分叉出新会话，不复制历史记录。
+     */
+    public ForkResponse fork(String sessionId, Long turnId) {
+        ChatBranch branch = branchService.fork(sessionId, turnId);
+        return new ForkResponse(branch.getSessionId(), branch.getHeadId(), branch.getDepth());
+    }
+
+    /**
+     * 会话所在分叉树上的全部分支，用于在原会话与各分支之间切换。
+     */
+    public List<BranchSummary> branches(String sessionId) {
+        return branchService.family(sessionId).stream()
+                .map(b -> new BranchSummary(b.getSessionId(), b.getForkedFrom(), b.getHeadId(), b.getDepth(), b.getCreatedAt()))
+                .toList();
+    }
+
+    private void recordUsage(Role role, String sessionId, TokenUsage usage) {
+        tokenUsageLedger.record(role.getId(), sessionId, TokenUsageLedger.SOURCE_CHAT, usage);
+        String roleTag = String.valueOf(role.getId());
+        meterRegistry.counter("cosplay.chat.prompt.tokens", "role", roleTag).increment(usage.promptTokens());
+        meterRegistry.counter("cosplay.chat.prompt.cached.tokens", "role", roleTag).increment(usage.cachedTokens());
+        log.debug("Token usage role={} prompt={} cached={} completion={}",
+                roleTag, usage.promptTokens(), usage.cachedTokens(), usage.completionTokens());
+    }
+
+    public record ChatResponse(String sessionId, String reply, Long turnId) {}
 
+    public record SessionResponse(String sessionId, String greeting) {}
 
+    public record ForkResponse(String sessionId, Long headId, int turns) {}
+
+    public record BranchSummary(String sessionId, String forkedFrom, Long headId, int turns, Instant createdAt) {}
+}
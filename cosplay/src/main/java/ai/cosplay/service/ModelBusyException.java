@@ -0,0 +1,10 @@
+package ai.cosplay.service;
+
+/**
+ * 模型调用因排队已满或超过截止时间被丢弃，对外返回 503。
+ */
+public class ModelBusyException extends RuntimeException {
+    public ModelBusyException(String message) {
+        super(message);
+    }
+}
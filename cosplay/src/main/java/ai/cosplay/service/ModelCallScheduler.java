@@ -0,0 +1,153 @@
+package ai.cosplay.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.concurrent.CustomizableThreadFactory;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * 所有上游模型调用（ChatModel / ChatClient）的统一入口。
+ * 每条优先级通道有独立的并发额度和队列，批量的角色生成不会占用在线对话的额度；
+ * 排队超过截止时间的请求直接丢弃，不再发往上游。
+ */
+@Component
+public class ModelCallScheduler {
+    private static final Logger log = LoggerFactory.getLogger(ModelCallScheduler.class);
+
+    public enum Lane {
+        /** 在线对话 */
+        INTERACTIVE,
+        /** 角色生成等后台任务 */
+        BACKGROUND
+    }
+
+    private final Map<Lane, LaneExecutor> lanes = new EnumMap<>(Lane.class);
+
+    public ModelCallScheduler(MeterRegistry meterRegistry,
+                              @Value("${app.ai.scheduler.interactive.concurrency:8}") int interactiveConcurrency,
+                              @Value("${app.ai.scheduler.interactive.queue-capacity:200}") int interactiveQueue,
+                              @Value("${app.ai.scheduler.interactive.timeout:120s}") Duration interactiveTimeout,
+                              @Value("${app.ai.scheduler.background.concurrency:2}") int backgroundConcurrency,
+                              @Value("${app.ai.scheduler.background.queue-capacity:100}") int backgroundQueue,
+                              @Value("${app.ai.scheduler.background.timeout:300s}") Duration backgroundTimeout) {
+        lanes.put(Lane.INTERACTIVE, new LaneExecutor(Lane.INTERACTIVE, interactiveConcurrency, interactiveQueue, interactiveTimeout, meterRegistry));
+        lanes.put(Lane.BACKGROUND, new LaneExecutor(Lane.BACKGROUND, backgroundConcurrency, backgroundQueue, backgroundTimeout, meterRegistry));
+    }
+
+    /**
+     * 在指定通道执行模型调用，排队上限为通道默认超时。
+     */
+    public <T> T call(Lane lane, Supplier<T> task) {
+        return call(lane, task, null);
+    }
+
+    /**
+     * 在指定通道执行模型调用。deadline 为客户端截止时间，为空时使用通道默认排队上限；
+     * 截止时间只约束排队：到期仍未开始的请求从队列移除并抛出 {@link ModelBusyException}，
+     * 已开始的调用等待其完成，执行时长由 HTTP 客户端的读超时约束（见 AIConfig）。
+     */
+    public <T> T call(Lane lane, Supplier<T> task, Instant deadline) {
+        LaneExecutor executor = lanes.get(lane);
+        Instant laneDeadline = Instant.now().plus(executor.timeout);
+        Instant effectiveDeadline = deadline != null && deadline.isBefore(laneDeadline) ? deadline : laneDeadline;
+        long enqueuedAt = System.nanoTime();
+        // 工作线程取出任务与调用方放弃等待之间只能有一方成功，避免已放弃的请求仍被发往上游
+        AtomicBoolean claimed = new AtomicBoolean();
+
+        Future<T> future;
+        try {
+            future = executor.pool.submit(() -> {
+                if (!claimed.compareAndSet(false, true)) {
+                    throw new CancellationException();
+                }
+                executor.waitTimer.record(System.nanoTime() - enqueuedAt, TimeUnit.NANOSECONDS);
+                if (Instant.now().isAfter(effectiveDeadline)) {
+                    executor.expired.increment();
+                    throw new ModelBusyException("请求已超过截止时间，未调用模型");
+                }
+                return task.get();
+            });
+        } catch (RejectedExecutionException e) {
+            executor.rejected.increment();
+            log.warn("Model call rejected, lane={} queued={}", lane, executor.pool.getQueue().size());
+            throw new ModelBusyException("AI服务繁忙，请稍后重试");
+        }
+
+        try {
+            long waitMillis = Math.max(0, Duration.between(Instant.now(), effectiveDeadline).toMillis());
+            try {
+                return future.get(waitMillis, TimeUnit.MILLISECONDS);
+            } catch (TimeoutException e) {
+                if (claimed.compareAndSet(false, true)) {
+                    // 仍在排队：移出队列，不再占用队列容量和 queue.depth
+                    future.cancel(false);
+                    executor.pool.remove((Runnable) future);
+                    executor.expired.increment();
+                    throw new ModelBusyException("AI服务繁忙，请稍后重试");
+                }
+                // 已开始执行，等待上游返回
+                return future.get();
+            }
+        } catch (InterruptedException e) {
+            if (claimed.compareAndSet(false, true)) {
+                future.cancel(false);
+                executor.pool.remove((Runnable) future);
+            }
+            Thread.currentThread().interrupt();
+            throw new ModelBusyException("模型调用被中断");
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException runtimeException) {
+                throw runtimeException;
+            }
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        lanes.values().forEach(executor -> executor.pool.shutdownNow());
+    }
+
+    private static final class LaneExecutor {
+        private final ThreadPoolExecutor pool;
+        private final Duration timeout;
+        private final Timer waitTimer;
+        private final Counter expired;
+        private final Counter rejected;
+
+        private LaneExecutor(Lane lane, int concurrency, int queueCapacity, Duration timeout, MeterRegistry meterRegistry) {
+            String name = lane.name().toLowerCase();
+            this.pool = new ThreadPoolExecutor(concurrency, concurrency, 0L, TimeUnit.MILLISECONDS,
+                    new LinkedBlockingQueue<>(queueCapacity), new CustomizableThreadFactory("model-" + name + "-"));
+            this.timeout = timeout;
+
+            Tags tags = Tags.of("lane", name);
+            meterRegistry.gauge("cosplay.model.queue.depth", tags, pool, p -> p.getQueue().size());
+            meterRegistry.gauge("cosplay.model.active", tags, pool, ThreadPoolExecutor::getActiveCount);
+            this.waitTimer = meterRegistry.timer("cosplay.model.queue.wait", tags);
+            this.expired = meterRegistry.counter("cosplay.model.dropped", tags.and("reason", "deadline"));
+            this.rejected = meterRegistry.counter("cosplay.model.dropped", tags.and("reason", "queue_full"));
+        }
+    }
+}
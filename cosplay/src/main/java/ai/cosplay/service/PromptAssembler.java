@@ -0,0 +1,71 @@
+package ai.cosplay.service;
+
+import ai.cosplay.domain.ChatHistory;
+import ai.cosplay.domain.Role;
+import org.springframework.ai.chat.messages.AssistantMessage;
+import org.springframework.ai.chat.messages.Message;
+import org.springframework.ai.chat.messages.SystemMessage;
+import org.springframework.ai.chat.messages.UserMessage;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 组装对话上下文，保证同一角色/会话的前缀在相邻请求之间逐字节一致，
+ * 以命中服务端的上下文缓存（DashScope 等 OpenAI 兼容接口按前缀匹配）。
+ */
+@Component
+public class PromptAssembler {
+    /** 单次请求最多携带的历史轮数 */
+    static final int MAX_TURNS = 100;
+    /** 历史超出上限后按该步长整块丢弃最早的轮次，而不是每轮滑动一次 */
+    static final int WINDOW_STEP = 20;
+
+    /**
+     * 按时间正序的历史记录组装完整消息列表：系统提示词 + 开场白 + 历史 + 本轮用户消息。
+     * 开场白在会话创建时已展示给用户，同一角色下固定不变，也属于稳定前缀。
+     */
+    public List<Message> assemble(Role role, List<ChatHistory> chronological, String userMessageText) {
+        List<Message> messages = new ArrayList<>(chronological.size() * 2 + 3);
+        messages.add(new SystemMessage(normalize(role.getSystemPrompt())));
+        messages.add(new AssistantMessage(normalize(role.effectiveGreeting())));
+        for (ChatHistory h : chronological) {
+            messages.add(new UserMessage(normalize(h.getUserMessage())));
+            messages.add(new AssistantMessage(normalize(h.getAssistantReply())));
+        }
+        messages.add(new UserMessage(normalize(userMessageText)));
+        return messages;
+    }
+
+    /**
+     * 会话共有 totalTurns 轮历史时应携带的轮数。超过上限后窗口起点按 WINDOW_STEP 对齐，
+     * 这样在接下来的 WINDOW_STEP 轮内前缀保持不变。
+     */
+    public int windowSize(long totalTurns) {
+        if (totalTurns <= MAX_TURNS) {
+            return (int) totalTurns;
+        }
+        long overflow = totalTurns - MAX_TURNS;
+        long dropped = (overflow + WINDOW_STEP - 1) / WINDOW_STEP * WINDOW_STEP;
+        return (int) (totalTurns - dropped);
+    }
+
+    /**
+     * 统一换行符、去掉行尾空白和首尾空行；不改动行内内容。
+     */
+    static String normalize(String text) {
+        if (text == null) {
+            return "";
+        }
+        String[] lines = text.replace("\r\n", "\n").replace('\r', '\n').split("\n", -1);
+        StringBuilder sb = new StringBuilder(text.length());
+        for (String line : lines) {
+            if (!sb.isEmpty()) {
+                sb.append('\n');
+            }
+            sb.append(line.stripTrailing());
+        }
+        return sb.toString().strip();
+    }
+}
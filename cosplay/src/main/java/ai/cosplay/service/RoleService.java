@@ -9,10 +9,12 @@ import lombok.RequiredArgsConstructor;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.ai.chat.client.ChatClient;
+import org.springframework.ai.chat.model.ChatResponse;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Service;
 
 import java.time.Instant;
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
 
@@ -22,6 +24,8 @@ public class RoleService {
     private static final Logger log = LoggerFactory.getLogger(RoleService.class);
     private final RoleRepository roleRepository;
     private final ChatClient chatClient;
+    private final ModelCallScheduler modelCallScheduler;
+    private final TokenUsageLedger tokenUsageLedger;
     @Autowired
     private FileStorageService fileStorageService;
 
@@ -44,59 +48,94 @@ public class RoleService {
         }
 
         // 使用AI生成专业的角色信息
-        RoleAIContent aiContent = generateRoleContentWithAI(request.getName(), request.getDescription());
-        String avatarUrl = null;
+        List<TokenUsage> usages = new ArrayList<>();
+        Long savedRoleId = null;
+        try {
+            RoleAIContent aiContent = generateRoleContentWithAI(request.getName(), request.getDescription(), usages);
+            String avatarUrl = null;
+
+            // 处理头像上传
+            if (request.getAvatar() != null && !request.getAvatar().isEmpty()) {
+                try {
+                    // 生成基于时间戳和角色名的文件名
+                    String filename = "role_" + System.currentTimeMillis() + "_" +
+                            request.getName().replaceAll("[^a-zA-Z0-9]", "_");
+                    avatarUrl = fileStorageService.saveAvatar(request.getAvatar(), filename);
+                } catch (Exception e) {
+                    log.error("头像上传失败，使用默认头像: {}", e.getMessage());
+                    avatarUrl = fileStorageService.getDefaultAvatar();
+                }
+            }
 
-        // 处理头像上传
-        if (request.getAvatar() != null && !request.getAvatar().isEmpty()) {
-            try {
-                // 生成基于时间戳和角色名的文件名
-                String filename = "role_" + System.currentTimeMillis() + "_" +
-                        request.getName().replaceAll("[^a-zA-Z0-9]", "_");
-                avatarUrl = fileStorageService.saveAvatar(request.getAvatar(), filename);
-            } catch (Exception e) {
-                log.error("头像上传失败，使用默认头像: {}", e.getMessage());
+            if(request.getAvatar()==null){
                 avatarUrl = fileStorageService.getDefaultAvatar();
             }
-        }
 
-        if(request.getAvatar()==null){
-            avatarUrl = fileStorageService.getDefaultAvatar();
+            Role role = Role.builder()
+                    .name(request.getName())
+                    .archetype(aiContent.getArchetype())
+                    .avatarUrl(avatarUrl)
+                    .description(aiContent.getDescription())
+                    .systemPrompt(aiContent.getSystemPrompt())
+                    .greeting(generateGreetingWithAI(request.getName(), aiContent, usages))
+                    .createdAt(Instant.now())
+                    .build();
+
+            Role savedRole = roleRepository.save(role);
+            savedRoleId = savedRole.getId();
+            log.info("AI增强角色创建成功: {}", savedRole.getName());
+            return savedRole;
+        } finally {
+            // 角色保存后才有ID，生成阶段的用量在此统一记入台账；创建失败时已消耗的用量不归属角色，同样入账
+            Long roleId = savedRoleId;
+            usages.forEach(usage -> tokenUsageLedger.record(roleId, null, TokenUsageLedger.SOURCE_ROLE_GENERATION, usage));
         }
-
-        Role role = Role.builder()
-                .name(request.getName())
-                .archetype(aiContent.getArchetype())
-                .avatarUrl(avatarUrl)
-                .description(aiContent.getDescription())
-                .systemPrompt(aiContent.getSystemPrompt())
-                .createdAt(Instant.now())
-                .build();
-
-        Role savedRole = roleRepository.save(role);
-        log.info("AI增强角色创建成功: {}", savedRole.getName());
-
-        return savedRole;
     }
 
-    // AI生成角色内容
-    private RoleAIContent generateRoleContentWithAI(String roleName, String userDescription) {
+    // AI生成角色内容。调度排队超时（ModelBusyException）直接抛出，由调用方返回 503；
+    // 其他调用失败或返回内容无法解析时使用默认模板
+    private RoleAIContent generateRoleContentWithAI(String roleName, String userDescription, List<TokenUsage> usages) {
         try {
             String prompt = buildAIPrompt(roleName, userDescription);
 
-            String aiResponse = chatClient.prompt()
+            ChatResponse response = modelCallScheduler.call(ModelCallScheduler.Lane.BACKGROUND, () -> chatClient.prompt()
                     .user(prompt)
                     .call()
-                    .content();
+                    .chatResponse());
+            usages.add(TokenUsage.from(response));
+            String aiResponse = response.getResult().getOutput().getText();
 
             return parseAIResponse(aiResponse, roleName, userDescription);
 
+        } catch (ModelBusyException e) {
+            throw e;
         } catch (Exception e) {
             log.error("AI生成角色内容失败，使用默认模板: {}", e.getMessage());
             return createDefaultRoleContent(roleName, userDescription);
         }
     }
 
+    // AI生成开场白，角色创建时生成一次，之后每个新会话直接复用。开场白是可选内容，
+    // 生成失败或为空时不保存，由 Role#effectiveGreeting 使用默认开场白，不影响角色创建
+    private String generateGreetingWithAI(String roleName, RoleAIContent aiContent, List<TokenUsage> usages) {
+        try {
+            ChatResponse response = modelCallScheduler.call(ModelCallScheduler.Lane.BACKGROUND, () -> chatClient.prompt()
+                    .system(aiContent.getSystemPrompt())
+                    .user("请以你的角色身份，用一到两句话向初次见面的用户打招呼并简单介绍自己。只输出开场白本身。")
+                    .call()
+                    .chatResponse());
+            usages.add(TokenUsage.from(response));
+            String greeting = response.getResult().getOutput().getText();
+            if (greeting != null && !greeting.isBlank()) {
+                return greeting.trim();
+            }
+            log.warn("AI生成开场白为空，使用默认开场白: {}", roleName);
+        } catch (Exception e) {
+            log.error("AI生成开场白失败，使用默认开场白: {}", e.getMessage());
+        }
+        return null;
+    }
+
     // 构建AI提示词
     private String buildAIPrompt(String roleName, String userDescription) {
         return String.format("""
@@ -158,7 +197,7 @@ public class RoleService {
         }
     }
 
-    // 默认角色内容（AI调用失败时使用）
+    // 默认角色内容（AI调用失败或返回内容无法解析时使用）
     private RoleAIContent createDefaultRoleContent(String roleName, String userDescription) {
         String defaultArchetype = "对话伙伴";
         String defaultDescription = userDescription != null ? userDescription : "一个有趣的角色";
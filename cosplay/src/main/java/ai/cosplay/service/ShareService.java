@@ -0,0 +1,210 @@
+package ai.cosplay.service;
+
+import ai.cosplay.domain.ChatBranch;
+import ai.cosplay.domain.ChatHistory;
+import ai.cosplay.domain.Role;
+import ai.cosplay.domain.SessionShare;
+import ai.cosplay.repository.SessionShareRepository;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
+import lombok.RequiredArgsConstructor;
+import org.hibernate.Hibernate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 会话分享快照与会话导出。
+ * 快照在创建时一次性冻结为 gzip JSON，之后只读；导出按数据库游标逐行写出，内存占用与会话长度无关。
+ */
+@Service
+@RequiredArgsConstructor
+public class ShareService {
+    private static final Logger log = LoggerFactory.getLogger(ShareService.class);
+    /** 快照缓存的总字节上限（按压缩后大小计） */
+    private static final long SNAPSHOT_CACHE_BYTES = 32L * 1024 * 1024;
+    /** 超过该大小的快照不进缓存，每次从数据库读取 */
+    private static final int SNAPSHOT_CACHE_MAX_ENTRY_BYTES = 1024 * 1024;
+
+    private final BranchService branchService;
+    private final SessionShareRepository sessionShareRepository;
+    private final ObjectMapper objectMapper;
+    private final EntityManager entityManager;
+
+    // 快照不可变，热门分享直接从内存返回；按访问顺序淘汰，总大小不超过 SNAPSHOT_CACHE_BYTES
+    private final LinkedHashMap<String, SessionShare> snapshotCache = new LinkedHashMap<>(16, 0.75f, true);
+    private long snapshotCacheBytes;
+
+    public enum ExportFormat { JSON, MARKDOWN }
+
+    @Transactional
+    public SessionShare createShare(String sessionId) {
+        ChatBranch branch = requireSession(sessionId);
+        long turnCount = branch.getDepth();
+        // 会话内容未变化时复用已有快照
+        Optional<SessionShare> existing = sessionShareRepository.findFirstBySessionIdAndTurnCount(sessionId, turnCount);
+        if (existing.isPresent()) {
+            return existing.get();
+        }
+
+        String shareId = UUID.randomUUID().toString().replace("-", "");
+        Instant createdAt = Instant.now();
+        ByteArrayOutputStream buffer = new ByteArrayOutputStream();
+        try (GZIPOutputStream gzip = new GZIPOutputStream(buffer)) {
+            writeJson(branch, shareId, createdAt, gzip);
+        } catch (IOException e) {
+            throw new UncheckedIOException("生成分享快照失败", e);
+        }
+
+        SessionShare saved = sessionShareRepository.save(SessionShare.builder()
+                .id(shareId)
+                .sessionId(sessionId)
+                .turnCount(turnCount)
+                .snapshot(buffer.toByteArray())
+                .createdAt(createdAt)
+                .build());
+        log.info("Created share id={} session={} turns={} bytes={}", shareId, sessionId, turnCount, saved.getSnapshot().length);
+        return saved;
+    }
+
+    public Optional<SessionShare> getShare(String shareId) {
+        synchronized (snapshotCache) {
+            SessionShare cached = snapshotCache.get(shareId);
+            if (cached != null) {
+                return Optional.of(cached);
+            }
+        }
+        Optional<SessionShare> share = sessionShareRepository.findById(shareId);
+        share.ifPresent(this::cacheSnapshot);
+        return share;
+    }
+
+    private void cacheSnapshot(SessionShare share) {
+        int size = share.getSnapshot().length;
+        if (size > SNAPSHOT_CACHE_MAX_ENTRY_BYTES) {
+            return;
+        }
+        synchronized (snapshotCache) {
+            SessionShare previous = snapshotCache.put(share.getId(), share);
+            if (previous != null) {
+                snapshotCacheBytes -= previous.getSnapshot().length;
+            }
+            snapshotCacheBytes += size;
+            Iterator<SessionShare> eldest = snapshotCache.values().iterator();
+            while (snapshotCacheBytes > SNAPSHOT_CACHE_BYTES && eldest.hasNext()) {
+                snapshotCacheBytes -= eldest.next().getSnapshot().length;
+                eldest.remove();
+            }
+        }
+    }
+
+    @Transactional
+    public void export(String sessionId, ExportFormat format, OutputStream out) throws IOException {
+        ChatBranch branch = requireSession(sessionId);
+        if (format == ExportFormat.MARKDOWN) {
+            writeMarkdown(branch, out);
+        } else {
+            writeJson(branch, null, Instant.now(), out);
+        }
+    }
+
+    /**
+     * 校验会话存在且有消息，返回其分支。导出接口需在开始写响应前调用，否则错误无法再以状态码返回。
+     */
+    @Transactional
+    public ChatBranch requireSession(String sessionId) {
+        return branchService.find(sessionId)
+                .filter(branch -> branch.getDepth() > 0)
+                .orElseThrow(() -> new IllegalArgumentException("会话不存在或没有消息: " + sessionId));
+    }
+
+    private void writeJson(ChatBranch branch, String shareId, Instant timestamp, OutputStream out) throws IOException {
+        Role role = loadRole(branch);
+        try (JsonGenerator json = objectMapper.getFactory().createGenerator(out)) {
+            json.writeStartObject();
+            if (shareId != null) {
+                json.writeStringField("shareId", shareId);
+            }
+            json.writeStringField("sessionId", branch.getSessionId());
+            json.writeStringField("timestamp", timestamp.toString());
+            json.writeObjectFieldStart("role");
+            json.writeNumberField("id", role.getId());
+            json.writeStringField("name", role.getName());
+            json.writeStringField("archetype", role.getArchetype());
+            json.writeStringField("description", role.getDescription());
+            json.writeStringField("avatarUrl", role.getAvatarUrl());
+            json.writeEndObject();
+            json.writeArrayFieldStart("messages");
+            forEachTurn(branch, h -> {
+                try {
+                    writeMessage(json, "user", h.getUserMessage());
+                    writeMessage(json, "ai", h.getAssistantReply());
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            json.writeEndArray();
+            json.writeEndObject();
+        }
+    }
+
+    private void writeMessage(JsonGenerator json, String sender, String content) throws IOException {
+        json.writeStartObject();
+        json.writeStringField("sender", sender);
+        json.writeStringField("content", content);
+        json.writeEndObject();
+    }
+
+    private void writeMarkdown(ChatBranch branch, OutputStream out) throws IOException {
+        Role role = loadRole(branch);
+        Writer writer = new OutputStreamWriter(out, StandardCharsets.UTF_8);
+        writer.write("# 与" + role.getName() + "的对话\n\n");
+        writer.write("> " + role.getArchetype() + " · 会话 " + branch.getSessionId() + "\n\n");
+        forEachTurn(branch, h -> {
+            try {
+                writer.write("**我**：\n\n" + h.getUserMessage() + "\n\n");
+                writer.write("**" + role.getName() + "**：\n\n" + h.getAssistantReply() + "\n\n---\n\n");
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+
+    // 流式读取前先取出角色信息，游标打开期间同一连接不能再发起其他查询
+    private Role loadRole(ChatBranch branch) {
+        Role role = branch.getRole();
+        Hibernate.initialize(role);
+        return role;
+    }
+
+    // 逐行处理并从持久化上下文中移除，避免长会话把所有实体留在内存里
+    private void forEachTurn(ChatBranch branch, Consumer<ChatHistory> consumer) throws IOException {
+        try (Stream<ChatHistory> turns = branchService.streamTurns(branch)) {
+            turns.forEach(h -> {
+                consumer.accept(h);
+                entityManager.detach(h);
+            });
+        } catch (UncheckedIOException e) {
+            throw e.getCause();
+        }
+    }
+}
@@ -0,0 +1,33 @@
+package ai.cosplay.service;
+
+import org.springframework.ai.chat.metadata.Usage;
+import org.springframework.ai.chat.model.ChatResponse;
+import org.springframework.ai.openai.api.OpenAiApi;
+
+/**
+ * 单次模型调用的 token 用量，cachedTokens 为命中服务端上下文缓存的输入 token 数。
+ */
+public record TokenUsage(long promptTokens, long completionTokens, long cachedTokens) {
+
+    public static final TokenUsage EMPTY = new TokenUsage(0, 0, 0);
+
+    public static TokenUsage from(ChatResponse response) {
+        if (response == null || response.getMetadata() == null || response.getMetadata().getUsage() == null) {
+            return EMPTY;
+        }
+        Usage usage = response.getMetadata().getUsage();
+        long cached = 0;
+        if (usage.getNativeUsage() instanceof OpenAiApi.Usage nativeUsage) {
+            if (nativeUsage.promptTokensDetails() != null && nativeUsage.promptTokensDetails().cachedTokens() != null) {
+                cached = nativeUsage.promptTokensDetails().cachedTokens();
+            } else if (nativeUsage.promptCacheHitTokens() != null) {
+                cached = nativeUsage.promptCacheHitTokens();
+            }
+        }
+        return new TokenUsage(valueOf(usage.getPromptTokens()), valueOf(usage.getCompletionTokens()), cached);
+    }
+
+    private static long valueOf(Integer value) {
+        return value != null ? value : 0;
+    }
+}
@@ -0,0 +1,161 @@
+package ai.cosplay.service;
+
+import ai.cosplay.domain.TokenUsageEntry;
+import ai.cosplay.domain.UsageTotal;
+import ai.cosplay.repository.TokenUsageRepository;
+import jakarta.annotation.PreDestroy;
+import lombok.RequiredArgsConstructor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Timestamp;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * token 用量台账。调用路径上只在内存中累加（LongAdder 分段计数，几乎无竞争），
+ * 由定时任务按 (日期, 角色, 会话, 来源) 批量累加到 token_usage 表，每个 key 每天只有一行。
+ */
+@Service
+@RequiredArgsConstructor
+public class TokenUsageLedger {
+    private static final Logger log = LoggerFactory.getLogger(TokenUsageLedger.class);
+
+    public static final String SOURCE_CHAT = "chat";
+    public static final String SOURCE_ROLE_GENERATION = "role_generation";
+
+    // 唯一键不对 NULL 去重，未归属角色/会话的用量使用非空占位值
+    private static final long NO_ROLE = 0L;
+    private static final String NO_SESSION = "";
+
+    // IDENTITY 主键下 Hibernate 不做批量插入，这里用 JDBC 批量 upsert（连接串开启 rewriteBatchedStatements）
+    private static final String UPSERT_SQL = """
+            INSERT INTO token_usage (usage_date, role_id, session_id, source,
+                                     call_count, prompt_tokens, completion_tokens, cached_tokens, created_at)
+            VALUES (?, ?, ?, ?, ?, ?, ?, ?, ?)
+            ON DUPLICATE KEY UPDATE call_count        = call_count + VALUES(call_count),
+                                    prompt_tokens     = prompt_tokens + VALUES(prompt_tokens),
+                                    completion_tokens = completion_tokens + VALUES(completion_tokens),
+                                    cached_tokens     = cached_tokens + VALUES(cached_tokens)
+            """;
+
+    private final TokenUsageRepository tokenUsageRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final ConcurrentHashMap<UsageKey, UsageCounters> counters = new ConcurrentHashMap<>();
+
+    /**
+     * 记录一次模型调用的用量，roleId/sessionId 可为空。
+     */
+    public void record(Long roleId, String sessionId, String source, TokenUsage usage) {
+        UsageKey key = new UsageKey(LocalDate.now(),
+                roleId != null ? roleId : NO_ROLE, sessionId != null ? sessionId : NO_SESSION, source);
+        counters.computeIfAbsent(key, k -> new UsageCounters())
+                .add(1, usage.promptTokens(), usage.completionTokens(), usage.cachedTokens());
+    }
+
+    @Scheduled(fixedDelayString = "${app.usage.flush-interval:PT30S}", initialDelayString = "${app.usage.flush-interval:PT30S}")
+    public void flush() {
+        // 两天前的计数已不会再有写入，最后一次取出后移除，内存中只保留最近两天的 key
+        LocalDate expireBefore = LocalDate.now().minusDays(1);
+        List<TokenUsageEntry> batch = new ArrayList<>();
+        counters.forEach((key, value) -> {
+            if (key.day().isBefore(expireBefore)) {
+                counters.remove(key, value);
+            }
+            TokenUsageEntry entry = value.drain(key);
+            if (entry != null) {
+                batch.add(entry);
+            }
+        });
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            Timestamp now = Timestamp.from(Instant.now());
+            // 整批在一个事务内提交，失败时全部回滚，加回内存的增量不会重复计数
+            transactionTemplate.executeWithoutResult(status ->
+                    jdbcTemplate.batchUpdate(UPSERT_SQL, batch, batch.size(), (ps, entry) -> {
+                        ps.setObject(1, entry.getUsageDate());
+                        ps.setLong(2, entry.getRoleId());
+                        ps.setString(3, entry.getSessionId());
+                        ps.setString(4, entry.getSource());
+                        ps.setLong(5, entry.getCallCount());
+                        ps.setLong(6, entry.getPromptTokens());
+                        ps.setLong(7, entry.getCompletionTokens());
+                        ps.setLong(8, entry.getCachedTokens());
+                        ps.setTimestamp(9, now);
+                    }));
+            log.debug("Flushed {} token usage entries", batch.size());
+        } catch (Exception e) {
+            // 写库失败时把增量加回内存，下次刷盘重试
+            log.error("Token usage flush failed, will retry: {}", e.getMessage());
+            batch.forEach(entry -> counters
+                    .computeIfAbsent(new UsageKey(entry.getUsageDate(), entry.getRoleId(), entry.getSessionId(), entry.getSource()),
+                            k -> new UsageCounters())
+                    .add(entry.getCallCount(), entry.getPromptTokens(), entry.getCompletionTokens(), entry.getCachedTokens()));
+        }
+    }
+
+    @PreDestroy
+    public void flushOnShutdown() {
+        flush();
+    }
+
+    public List<UsageTotal> totalsByRole(LocalDate from, LocalDate to) {
+        return tokenUsageRepository.sumByRole(from, to);
+    }
+
+    public List<UsageTotal> totalsBySession(Long roleId, LocalDate from, LocalDate to) {
+        return tokenUsageRepository.sumBySession(roleId, from, to);
+    }
+
+    public List<UsageTotal> totalsByDay(Long roleId, LocalDate from, LocalDate to) {
+        return tokenUsageRepository.sumByDay(roleId, from, to);
+    }
+
+    private record UsageKey(LocalDate day, long roleId, String sessionId, String source) {}
+
+    private static final class UsageCounters {
+        private final LongAdder calls = new LongAdder();
+        private final LongAdder promptTokens = new LongAdder();
+        private final LongAdder completionTokens = new LongAdder();
+        private final LongAdder cachedTokens = new LongAdder();
+
+        void add(long callCount, long prompt, long completion, long cached) {
+            calls.add(callCount);
+            promptTokens.add(prompt);
+            completionTokens.add(completion);
+            cachedTokens.add(cached);
+        }
+
+        // 取出并清零；与并发写入交错时增量会落到本次或下次刷盘，不会丢失
+        TokenUsageEntry drain(UsageKey key) {
+            long callCount = calls.sumThenReset();
+            long prompt = promptTokens.sumThenReset();
+            long completion = completionTokens.sumThenReset();
+            long cached = cachedTokens.sumThenReset();
+            if (callCount == 0 && prompt == 0 && completion == 0 && cached == 0) {
+                return null;
+            }
+            return TokenUsageEntry.builder()
+                    .usageDate(key.day())
+                    .roleId(key.roleId())
+                    .sessionId(key.sessionId())
+                    .source(key.source())
+                    .callCount(callCount)
+                    .promptTokens(prompt)
+                    .completionTokens(completion)
+                    .cachedTokens(cached)
+                    .build();
+        }
+    }
+}
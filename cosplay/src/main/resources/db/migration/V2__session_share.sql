@@ -0,0 +1,13 @@
+-- 会话分享快照（不可变，snapshot 为 gzip 压缩的 JSON）
+CREATE TABLE `session_share` (
+    `id`         VARCHAR(32) NOT NULL COMMENT '分享ID',
+    `session_id` VARCHAR(64) NOT NULL COMMENT '会话UUID',
+    `turn_count` BIGINT      NOT NULL COMMENT '快照包含的对话轮数',
+    `snapshot`   LONGBLOB    NOT NULL COMMENT 'gzip 压缩的会话 JSON',
+    `created_at` DATETIME(6) NOT NULL COMMENT '创建时间',
+    PRIMARY KEY (`id`),
+    KEY `idx_share_session` (`session_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='会话分享快照表';
+
+-- 导出/分享按会话顺序扫描
+CREATE INDEX `idx_chat_session_created` ON `chat_history` (`session_id`, `created_at`, `id`);
@@ -0,0 +1,2 @@
+-- 角色预生成开场白，为空时使用默认模板
+ALTER TABLE `roles` ADD COLUMN `greeting` LONGTEXT NULL COMMENT '开场白' AFTER `system_prompt`;
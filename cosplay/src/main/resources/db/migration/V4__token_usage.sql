@@ -0,0 +1,16 @@
+-- token 用量台账：每次刷盘按 (日期, 角色, 会话, 来源) 写入增量，查询时汇总
+CREATE TABLE `token_usage` (
+    `id`                BIGINT      NOT NULL AUTO_INCREMENT,
+    `usage_date`        DATE        NOT NULL COMMENT '日期',
+    `role_id`           BIGINT               COMMENT '角色ID',
+    `session_id`        VARCHAR(64)          COMMENT '会话UUID',
+    `source`            VARCHAR(32) NOT NULL COMMENT '调用来源：chat / role_generation',
+    `call_count`        BIGINT      NOT NULL COMMENT '调用次数',
+    `prompt_tokens`     BIGINT      NOT NULL COMMENT '输入 token',
+    `completion_tokens` BIGINT      NOT NULL COMMENT '输出 token',
+    `cached_tokens`     BIGINT      NOT NULL COMMENT '命中上下文缓存的输入 token',
+    `created_at`        DATETIME(6) NOT NULL COMMENT '写入时间',
+    PRIMARY KEY (`id`),
+    KEY `idx_usage_date_role` (`usage_date`, `role_id`),
+    KEY `idx_usage_session` (`session_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='token 用量台账';
@@ -0,0 +1,34 @@
+-- 会话分支：对话记录按 parent_id 链接成树，分支只保存 head 指针，分叉不复制历史
+ALTER TABLE `chat_history`
+    ADD COLUMN `parent_id` BIGINT NULL COMMENT '上一轮对话ID' AFTER `session_id`,
+    ADD COLUMN `depth`     INT    NULL COMMENT '从根开始的轮次序号' AFTER `parent_id`,
+    ADD KEY `idx_chat_parent` (`parent_id`);
+
+-- 已有会话按时间顺序串成单链
+UPDATE `chat_history` h
+    JOIN (SELECT `id`,
+                 LAG(`id`) OVER (PARTITION BY `session_id` ORDER BY `created_at`, `id`)        AS `prev_id`,
+                 ROW_NUMBER() OVER (PARTITION BY `session_id` ORDER BY `created_at`, `id`)     AS `rn`
+          FROM `chat_history`) p ON h.`id` = p.`id`
+SET h.`parent_id` = p.`prev_id`,
+    h.`depth`     = p.`rn`;
+
+CREATE TABLE `chat_branch` (
+    `session_id`  VARCHAR(64) NOT NULL COMMENT '会话UUID',
+    `role_id`     BIGINT      NOT NULL COMMENT '关联角色ID',
+    `head_id`     BIGINT               COMMENT '分支最新一轮对话ID',
+    `depth`       INT         NOT NULL COMMENT 'head 的轮次序号',
+    `forked_from` VARCHAR(64)          COMMENT '分叉来源会话',
+    `created_at`  DATETIME(6) NOT NULL COMMENT '创建时间',
+    PRIMARY KEY (`session_id`),
+    -- 不建到 roles.id 的外键：init_cosplay_db.sql 建出的库 roles.id 为 INT，类型不一致时 MySQL 拒绝建外键
+    KEY `idx_branch_role` (`role_id`)
+) ENGINE=InnoDB DEFAULT CHARSET=utf8mb4 COLLATE=utf8mb4_unicode_ci COMMENT='会话分支表';
+
+-- 已有会话各建一个分支，head 为最后一轮
+INSERT INTO `chat_branch` (`session_id`, `role_id`, `head_id`, `depth`, `created_at`)
+SELECT `session_id`, `role_id`, `id`, `depth`, `created_at`
+FROM (SELECT `session_id`, `role_id`, `id`, `depth`, `created_at`,
+             ROW_NUMBER() OVER (PARTITION BY `session_id` ORDER BY `depth` DESC) AS `rn`
+      FROM `chat_history`) t
+WHERE t.`rn` = 1;
@@ -0,0 +1,32 @@
+-- token 用量台账改为每个 (日期, 角色, 会话, 来源) 一行，刷盘时 INSERT ... ON DUPLICATE KEY UPDATE 累加
+-- 唯一键不对 NULL 去重，未归属角色/会话的用量分别记为 role_id = 0、session_id = ''
+
+-- 合并已有的多条增量
+CREATE TABLE `token_usage_merged` AS
+SELECT `usage_date`,
+       COALESCE(`role_id`, 0)     AS `role_id`,
+       COALESCE(`session_id`, '') AS `session_id`,
+       `source`,
+       SUM(`call_count`)          AS `call_count`,
+       SUM(`prompt_tokens`)       AS `prompt_tokens`,
+       SUM(`completion_tokens`)   AS `completion_tokens`,
+       SUM(`cached_tokens`)       AS `cached_tokens`,
+       MIN(`created_at`)          AS `created_at`
+FROM `token_usage`
+GROUP BY `usage_date`, COALESCE(`role_id`, 0), COALESCE(`session_id`, ''), `source`;
+
+DELETE FROM `token_usage`;
+
+ALTER TABLE `token_usage`
+    MODIFY COLUMN `role_id`    BIGINT      NOT NULL DEFAULT 0  COMMENT '角色ID，0 表示未归属角色',
+    MODIFY COLUMN `session_id` VARCHAR(64) NOT NULL DEFAULT '' COMMENT '会话UUID，空串表示非会话调用',
+    DROP KEY `idx_usage_date_role`,
+    ADD UNIQUE KEY `uk_usage_key` (`usage_date`, `role_id`, `session_id`, `source`);
+
+INSERT INTO `token_usage` (`usage_date`, `role_id`, `session_id`, `source`,
+                           `call_count`, `prompt_tokens`, `completion_tokens`, `cached_tokens`, `created_at`)
+SELECT `usage_date`, `role_id`, `session_id`, `source`,
+       `call_count`, `prompt_tokens`, `completion_tokens`, `cached_tokens`, `created_at`
+FROM `token_usage_merged`;
+
+DROP TABLE `token_usage_merged`;
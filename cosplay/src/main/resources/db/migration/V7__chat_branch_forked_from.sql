@@ -0,0 +1,3 @@
+-- 按 forked_from 逐层查找分叉，列出会话所在的分叉树
+ALTER TABLE `chat_branch`
+    ADD KEY `idx_branch_forked_from` (`forked_from`);
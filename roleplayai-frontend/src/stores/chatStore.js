@@ -1,6 +1,6 @@
 import { defineStore } from 'pinia'
 import { ref, computed } from 'vue'
-import { chat, getChatHistory } from '@/utils/api/chat'
+import { chat, createSession, forkSession, getChatHistory } from '@/utils/api/chat'
 import { useRoleStore } from '@/stores/roleStore'
 import { startSpeechRecognition, speakText } from '@/utils/speech'
 
@@ -65,28 +65,18 @@ export const useChatStore = defineStore('chat', {
         
         // 如果没有现有会话或强制创建新会话，创建新会话
         if (!existingSessionId) {
-          const response = await chat(roleId, null, "你好")
-          this.sessionId = response.sessionId
+          const session = await createSession(roleId)
+          this.sessionId = session.sessionId
           
           // 保存sessionId到localStorage
           localStorage.setItem(savedSessionKey, this.sessionId)
           
-          // 加载新会话的历史记录
-          await this.loadHistory()
-          
-          // 如果是新会话，发送欢迎消息
-          if (this.messages.length === 0) {
-            const role = roleStore.roles.find(r => r.id === roleId)
-            
-            if (role) {
-              const welcomeMessage = `你好！我是${role.name}，${role.description}。有什么我可以帮助你的吗？`
-              this.messages.push({
-                sender: 'ai',
-                content: welcomeMessage,
-                isWelcome: true
-              })
-            }
-          }
+          // 新会话没有历史记录，直接展示角色开场白
+          this.messages = [{
+            sender: 'ai',
+            content: session.greeting,
+            isWelcome: true
+          }]
         }
       } catch (error) {
         console.error('初始化聊天失败:', error)
@@ -110,7 +100,7 @@ export const useChatStore = defineStore('chat', {
         const reversedHistory = history.reverse()
         this.messages = reversedHistory.map(item => [
           { sender: 'user', content: item.userMessage, id: item.id },
-          { sender: 'ai', content: item.assistantReply, id: item.id }
+          { sender: 'ai', content: item.assistantReply, id: item.id, turnId: item.id }
         ]).flat()
       } catch (error) {
         console.error('加载聊天历史失败:', error)
@@ -170,6 +160,12 @@ export const useChatStore = defineStore('chat', {
         const savedSessionKey = `session_${this.currentRoleId}`
         localStorage.setItem(savedSessionKey, this.sessionId)
         
+        // 记录本轮ID，新回复无需刷新即可从这里分支
+        const aiMessage = this.messages.find(m => m.id === this.streamingMessageId)
+        if (aiMessage) {
+          aiMessage.turnId = response.turnId
+        }
+        
         // 停止AI思考状态
         this.stopAiThinking()
         
@@ -190,6 +186,19 @@ export const useChatStore = defineStore('chat', {
       }
     },
     
+    // 从指定轮次分叉出新会话，并切换到新会话；原会话仍可通过分支列表切回
+    async forkAt(turnId) {
+      const branch = await forkSession(this.sessionId, turnId)
+      await this.switchBranch(branch.sessionId)
+    },
+    
+    // 切换到同一分叉树上的另一个分支
+    async switchBranch(sessionId) {
+      this.sessionId = sessionId
+      localStorage.setItem(`session_${this.currentRoleId}`, this.sessionId)
+      await this.loadHistory()
+    },
+    
     // 新增：AI思考状态
     startAiThinking() {
       this.aiThinking = true
@@ -39,6 +39,37 @@ export const chat = (roleId, sessionId, message) => {
   })
 }
 
+// 创建新会话：后端直接分配sessionId并返回角色开场白，不调用模型
+export const createSession = (roleId) => {
+  return axios.post(`${API_BASE_URL}/session`, { roleId })
+    .then(response => response.data)
+    .catch(error => {
+      console.error('创建会话失败:', error)
+      throw error
+    })
+}
+
+// 从会话的某一轮分叉出新会话（后端不复制历史记录）
+export const forkSession = (sessionId, turnId) => {
+  return axios.post(`${API_BASE_URL}/fork`, { sessionId, turnId })
+    .then(response => response.data)
+    .catch(error => {
+      console.error('创建分支失败:', error)
+      throw error
+    })
+}
+
+// 会话所在分叉树上的全部分支（原会话及其各级分叉）
+export const listBranches = (sessionId) => {
+  return axios.get(`${API_BASE_URL}/branches`, {
+    params: { sessionId }
+  }).then(response => response.data)
+  .catch(error => {
+    console.error('获取分支列表失败:', error)
+    throw error
+  })
+}
+
 export const getChatHistory = (sessionId) => {
   return axios.get(`${API_BASE_URL}/history`, {
     params: { sessionId }
@@ -53,4 +84,32 @@ export const getChatHistory = (sessionId) => {
     
     throw error
   })
-}
\ No newline at end of file
+}
+
+export const createShare = (sessionId) => {
+  return axios.post('/api/share', { sessionId })
+    .then(response => response.data)
+    .catch(error => {
+      console.error('创建分享失败:', error)
+      throw error
+    })
+}
+
+export const getShare = (shareId) => {
+  return axios.get(`/api/share/${shareId}`)
+    .then(response => response.data)
+    .catch(error => {
+      console.error('获取分享内容失败:', error)
+      
+      if (error.response && error.response.status === 404) {
+        return null; // 分享不存在
+      }
+      
+      throw error
+    })
+}
+
+// 导出完整会话（后端流式输出），format: json | markdown
+export const getExportUrl = (sessionId, format = 'json') => {
+  return `${API_BASE_URL}/export?sessionId=${encodeURIComponent(sessionId)}&format=${format}`
+}